@@ -45,6 +45,26 @@ public class ArrayPreconditions {
         }
     }
 
+    /**
+     * Ensures that index is inside bounds of the sequence which may be longer
+     * than an array, throws an exception if they is not.
+     *
+     * @param size  the length of the sequence
+     * @param index the sequence index
+     * @throws IllegalArgumentException if the specified index is outside of sequence bounds
+     */
+    public static void ensureIndex(long size, long index) {
+        if (index < 0) {
+            final String message = String.format("Index (%d) should not be negative.", index);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (index >= size) {
+            final String message = String.format("Index (%d) should be less than size (%d).", index, size);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
     /**
      * Ensures that indexes are in order, throws an exception if they are not.
      *
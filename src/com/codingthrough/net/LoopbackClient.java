@@ -0,0 +1,93 @@
+package com.codingthrough.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * The <tt>LoopbackClient</tt> is the base of clients which send requests to
+ * <tt>LoopbackServer</tt> on the same host.
+ * <p>
+ * Requests share a single connection and are sent one at a time. Any I/O failure closes
+ * the connection, as a partly read response can not be told apart from the next one,
+ * so all later requests fail at once.
+ * </p>
+ */
+public abstract class LoopbackClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Connects to the server listening the loopback address.
+     *
+     * @param port the port the server listens
+     * @throws IOException if the connection can not be established
+     */
+    protected LoopbackClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            this.socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the request and reads its result.
+     *
+     * @param request  writes the operation code and the arguments
+     * @param response reads the result
+     * @return the result
+     * @throws IOException              if the connection is closed or fails, it's closed then
+     * @throws IllegalArgumentException if the server answered with the error
+     */
+    protected synchronized <R> R call(Request request, Response<R> response) throws IOException {
+        if (socket.isClosed()) {
+            throw new IOException("Connection is closed.");
+        }
+
+        final String error;
+        try {
+            request.write(out);
+            out.flush();
+            if (in.readByte() == LoopbackServer.OK) {
+                return response.read(in);
+            }
+            error = in.readUTF();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        throw new IllegalArgumentException(error);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Writes the request.
+     */
+    @FunctionalInterface
+    protected interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the result of the request.
+     */
+    @FunctionalInterface
+    protected interface Response<R> {
+        R read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,199 @@
+package com.codingthrough.net;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+
+/**
+ * The <tt>LoopbackServer</tt> is the base of servers which answer <tt>LoopbackClient</tt>
+ * requests over the loopback socket.
+ * <p>
+ * Every request starts with the operation code followed by its arguments. Every response
+ * starts with {@link #OK} followed by the result, or with {@link #ERROR} followed by the
+ * error message in modified UTF-8. A response is buffered until it's complete, so a request
+ * failing with {@code RuntimeException} is answered with the error only, and the connection
+ * stays usable. A request failing with {@code IOException}, such as the unknown operation,
+ * closes the connection, as the rest of the stream can not be trusted anymore.
+ * </p>
+ */
+public abstract class LoopbackServer implements Closeable {
+    /**
+     * The status of the successful response.
+     */
+    public static final byte OK = 0;
+
+    /**
+     * The status of the failed response.
+     */
+    public static final byte ERROR = 1;
+
+    private static final long MIN_BACKOFF_MILLIS = 1;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    private final ServerSocket server;
+    // established connections, closed together with the server
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates the server bound to the loopback address.
+     *
+     * @param port the port to listen, or 0 to pick any free one
+     * @throws IOException if the socket can not be bound
+     */
+    protected LoopbackServer(int port) throws IOException {
+        this.server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts accepting connections, every connection is served by its own task,
+     * so the executor which starts a virtual thread per task suits the server best.
+     * Failures to accept or to submit a connection are retried with growing delays
+     * until the server is closed.
+     *
+     * @param executor the executor which runs the accepting loop and connection tasks
+     * @throws IllegalArgumentException if the specified executor is {@code null}
+     */
+    public void start(@Nonnull Executor executor) {
+        ensureNotNull(executor, "Executor [executor] should not be null.");
+
+        executor.execute(() -> {
+            long backoff = 0;
+            while (!server.isClosed()) {
+                Socket socket = null;
+                try {
+                    socket = server.accept();
+                    connections.add(socket);
+                    if (server.isClosed()) {
+                        // the server was closed while the connection was accepted
+                        drop(socket);
+                        return;
+                    }
+                    final Socket accepted = socket;
+                    executor.execute(() -> serve(accepted));
+                    backoff = 0;
+                } catch (IOException | RejectedExecutionException e) {
+                    drop(socket);
+                    if (server.isClosed()) {
+                        return;
+                    }
+                    backoff = Math.min(MAX_BACKOFF_MILLIS, Math.max(MIN_BACKOFF_MILLIS, backoff * 2));
+                    if (!sleep(backoff)) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the port the server listens
+     */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes established ones, requests which are being
+     * answered fail on the client side.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            drop(socket);
+        }
+    }
+
+    /**
+     * Reads the arguments of the request and writes its result, without the status.
+     * The whole request should be read before failing with {@code RuntimeException}.
+     *
+     * @param op  the operation code
+     * @param in  the request arguments
+     * @param out the response result
+     * @throws IOException if the request is malformed, the connection is closed then
+     */
+    protected abstract void respond(byte op, DataInputStream in, DataOutputStream out) throws IOException;
+
+    /**
+     * Reads the number of elements which follow it.
+     *
+     * @param in  the request arguments
+     * @param max the maximum number of elements
+     * @return the number of elements
+     * @throws IOException if the number is negative or greater than the maximum
+     */
+    protected static int readCount(DataInputStream in, int max) throws IOException {
+        final int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException(String.format("Count (%d) should be in [0, %d] range.", count, max));
+        }
+        return count;
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            s.setTcpNoDelay(true);
+
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final DataOutputStream result = new DataOutputStream(buffer);
+            while (true) {
+                final byte op = in.readByte();
+                buffer.reset();
+                try {
+                    respond(op, in, result);
+                    out.writeByte(OK);
+                    buffer.writeTo(out);
+                } catch (RuntimeException e) {
+                    out.writeByte(ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client or the server closed the connection, or the client broke the protocol
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void drop(Socket socket) {
+        if (socket != null) {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing to do with the connection which is already dropped
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the thread was interrupted
+     */
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -110,6 +110,7 @@ public class BinarySearch extends SearchSupport {
                 hi = mid - 1;
             } else {
                 rank = mid;
+                hi = mid - 1;
             }
         }
 
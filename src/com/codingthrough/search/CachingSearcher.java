@@ -0,0 +1,325 @@
+package com.codingthrough.search;
+
+import javax.annotation.Nonnull;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireTrue;
+
+/**
+ * The <tt>CachingSearcher</tt> finds elements in the sorted array using
+ * <tt>BinarySearch</tt> and memoizes the found ranks, which pays off when the comparator
+ * is expensive and the same keys are searched over and over again.
+ * <p>
+ * The cache is bounded and safe for concurrent use. Cached ranks are evicted using
+ * the CLOCK (second chance) algorithm, and a new rank is admitted in place of the eviction
+ * victim only if the new key was requested more frequently than the victim key, which
+ * is estimated with a small count-min sketch (TinyLFU admission policy). Concurrent
+ * lookups of the same missing key share a single search.
+ * </p>
+ * <p>
+ * Keys are cached by <tt>Object.equals()</tt> and <tt>Object.hashCode()</tt>, so they
+ * should be consistent with the comparator.
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://en.wikipedia.org/wiki/Page_replacement_algorithm#Clock">Wikipedia article - Clock</a>
+ * and <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>.
+ * </p>
+ */
+public class CachingSearcher<T> {
+    private final Comparator<T> comparator;
+    private final int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private volatile Generation<T> generation;
+
+    /**
+     * Creates the searcher over the sorted array, the array should not be modified
+     * while it's used by the searcher, use {@link #replace(Object[])} instead.
+     *
+     * @param a        the sorted array
+     * @param c        the comparator specifying the order
+     * @param capacity the maximum number of cached ranks
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified comparator is {@code null}
+     * @throws IllegalArgumentException if the specified capacity is not positive
+     */
+    public CachingSearcher(@Nonnull T[] a, @Nonnull Comparator<T> c, int capacity) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        ensureNotNull(c, "Comparator [c] should not be null.");
+        requireTrue(capacity > 0, "Capacity (%d) should be positive.", capacity);
+
+        this.comparator = c;
+        this.capacity = capacity;
+        this.generation = new Generation<>(a, capacity);
+    }
+
+    /**
+     * Finds the element in the sorted array, uses <tt>Comparator.compare()</tt>
+     * method for comparison.
+     *
+     * @param e the element to find
+     * @return index of the element if it's found, otherwise -1.
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     */
+    public int rank(@Nonnull T e) {
+        ensureNotNull(e, "Element [e] should not be null.");
+
+        final Generation<T> g = generation;
+        g.sketch.increment(e);
+
+        final Entry<T> entry = g.entries.get(e);
+        if (entry != null) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.rank;
+        }
+
+        misses.increment();
+
+        final FutureTask<Integer> task = new FutureTask<>(() -> {
+            // the rank may have been admitted after the miss by the search which just finished
+            final Entry<T> admitted = g.entries.get(e);
+            if (admitted != null) {
+                admitted.referenced = true;
+                return admitted.rank;
+            }
+            return search(g.array, e);
+        });
+        final FutureTask<Integer> running = g.searches.putIfAbsent(e, task);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            task.run();
+            final int rank = await(task);
+            admit(g, e, rank);
+            return rank;
+        } finally {
+            g.searches.remove(e, task);
+        }
+    }
+
+    /**
+     * Replaces the sorted array and invalidates all cached ranks, statistics are kept.
+     *
+     * @param a the new sorted array
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     */
+    public void replace(@Nonnull T[] a) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        generation = new Generation<>(a, capacity);
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups which required the search
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of cached ranks evicted in favour of more frequent keys
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of found ranks not admitted to the full cache
+     */
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return the ratio of lookups answered from the cache, or 0 if there were no lookups
+     */
+    public double hitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the number of currently cached ranks
+     */
+    public int size() {
+        return generation.entries.size();
+    }
+
+    private int search(T[] a, T e) {
+        return a.length == 0 ? -1 : BinarySearch.rank(a, e, comparator);
+    }
+
+    /**
+     * Puts the found rank into the cache, evicting the CLOCK victim if the cache is full
+     * and the victim key is less frequent than the new one.
+     */
+    private void admit(Generation<T> g, T key, int rank) {
+        final Entry<T> entry = new Entry<>(key, rank);
+
+        synchronized (g) {
+            if (g.entries.containsKey(key)) {
+                return;
+            }
+
+            if (g.count < capacity) {
+                g.clock[g.count++] = entry;
+                g.entries.put(key, entry);
+                return;
+            }
+
+            while (g.clock[g.hand].referenced) {
+                g.clock[g.hand].referenced = false;
+                g.hand = (g.hand + 1) % capacity;
+            }
+
+            final Entry<T> victim = g.clock[g.hand];
+            if (g.sketch.frequency(key) <= g.sketch.frequency(victim.key)) {
+                rejections.increment();
+                return;
+            }
+
+            g.entries.remove(victim.key, victim);
+            g.entries.put(key, entry);
+            g.clock[g.hand] = entry;
+            g.hand = (g.hand + 1) % capacity;
+            evictions.increment();
+        }
+    }
+
+    private static int await(FutureTask<Integer> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search was interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * The cached rank of the key.
+     */
+    private static final class Entry<T> {
+        private final T key;
+        private final int rank;
+        private volatile boolean referenced;
+
+        private Entry(T key, int rank) {
+            this.key = key;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * The cache state bound to a single sorted array, replacing the array
+     * replaces the whole generation, so searches still running against
+     * the old array can not pollute the new cache.
+     */
+    private static final class Generation<T> {
+        private final T[] array;
+        private final ConcurrentMap<T, Entry<T>> entries;
+        private final ConcurrentMap<T, FutureTask<Integer>> searches = new ConcurrentHashMap<>();
+        private final FrequencySketch sketch;
+
+        // guarded by this
+        private final Entry<T>[] clock;
+        private int count;
+        private int hand;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Generation(T[] array, int capacity) {
+            this.array = array;
+            this.entries = new ConcurrentHashMap<>(capacity);
+            this.sketch = new FrequencySketch(capacity);
+            this.clock = (Entry<T>[]) new Entry[capacity];
+        }
+    }
+
+    /**
+     * The count-min sketch of key frequencies kept in byte counters saturating at 15,
+     * which is enough to compare popular keys with unpopular ones, all counters are halved once
+     * the number of recorded lookups reaches ten times the cache capacity so that the sketch
+     * follows changes of the popular keys. Counters are updated without synchronization,
+     * a lost update only makes an estimate slightly less precise.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int MAX_WIDTH = 1 << 24;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        private FrequencySketch(int capacity) {
+            final int width = Integer.highestOneBit(Math.min(MAX_WIDTH, Math.max(16, capacity - 1))) << 1;
+            this.counters = new byte[DEPTH * width];
+            this.mask = width - 1;
+            this.sampleSize = capacity <= Integer.MAX_VALUE / 10 ? 10 * capacity : Integer.MAX_VALUE;
+        }
+
+        private void increment(Object key) {
+            final int hash = key.hashCode();
+            for (int i = 0; i < DEPTH; i++) {
+                final int index = index(hash, i);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                }
+            }
+
+            if (additions.incrementAndGet() == sampleSize) {
+                additions.set(0);
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>>= 1;
+                }
+            }
+        }
+
+        private int frequency(Object key) {
+            final int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.codingthrough.search;
+
+import javax.annotation.Nonnull;
+
+import static com.codingthrough.ArrayPreconditions.ensureIndex;
+import static com.codingthrough.Preconditions.ensureNotNull;
+
+/**
+ * The <tt>CompressedSortedLongs</tt> is an immutable, memory efficient representation
+ * of the sorted array of {@code long} values, which supports the same lookups as
+ * <tt>BinarySearch</tt> does.
+ * <p>
+ * Values are split into blocks of {@value #BLOCK_SIZE} elements. Every block keeps its
+ * minimum in the top-level array of block minima, while the block elements themselves are
+ * stored as bit-packed offsets from that minimum (frame of reference encoding) using as few
+ * bits as the largest offset in the block requires. A lookup runs the binary search over
+ * the block minima first, and then the binary search inside the single block, unpacking
+ * only the probed offsets, so it does not allocate.
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://en.wikipedia.org/wiki/Delta_encoding">Wikipedia article - Delta Encoding</a>.
+ * </p>
+ */
+public class CompressedSortedLongs {
+    /**
+     * The number of values stored in a single block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    private static final int BLOCK_SHIFT = 7;
+
+    private final int size;
+    private final long[] minima;
+    private final int[] offsets;
+    private final byte[] widths;
+    private final long[] words;
+
+    /**
+     * Creates the compressed copy of the sorted array.
+     *
+     * @param a the sorted array
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified array is not sorted
+     */
+    public CompressedSortedLongs(@Nonnull long[] a) {
+        ensureNotNull(a, "Array [a] should not be null.");
+
+        final int blocks = (a.length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        this.size = a.length;
+        this.minima = new long[blocks];
+        this.offsets = new int[blocks];
+        this.widths = new byte[blocks];
+
+        long totalWords = 0;
+        for (int b = 0; b < blocks; b++) {
+            final int lo = b << BLOCK_SHIFT;
+            final int hi = Math.min(lo + BLOCK_SIZE, a.length) - 1;
+
+            for (int i = Math.max(lo, 1); i <= hi; i++) {
+                if (a[i] < a[i - 1]) {
+                    final String message = String.format("Array [a] should be sorted, but a[%d] > a[%d].", i - 1, i);
+                    throw new IllegalArgumentException(message);
+                }
+            }
+
+            final int width = 64 - Long.numberOfLeadingZeros(a[hi] - a[lo]);
+            minima[b] = a[lo];
+            offsets[b] = (int) totalWords;
+            widths[b] = (byte) width;
+            totalWords += ((long) (hi - lo + 1) * width + 63) >>> 6;
+        }
+
+        if (totalWords > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Array [a] is too large to be compressed.");
+        }
+
+        this.words = new long[(int) totalWords];
+        for (int b = 0; b < blocks; b++) {
+            final int lo = b << BLOCK_SHIFT;
+            final int hi = Math.min(lo + BLOCK_SIZE, a.length) - 1;
+            final int width = widths[b];
+
+            for (int i = lo; i <= hi; i++) {
+                pack(offsets[b], (i - lo) * width, width, a[i] - minima[b]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value at the specified position.
+     *
+     * @param index the index of the value
+     * @return the value at the specified position
+     * @throws IllegalArgumentException if the specified index is outside of bounds
+     */
+    public long get(int index) {
+        ensureIndex(size, index);
+
+        final int b = index >>> BLOCK_SHIFT;
+        return minima[b] + offset(b, index & (BLOCK_SIZE - 1));
+    }
+
+    /**
+     * Finds the value.
+     *
+     * @param key the value to find
+     * @return index of the value if it's found, otherwise -1.
+     */
+    public int rank(long key) {
+        final int index = lowerBound(key);
+        return index < size && get(index) == key ? index : -1;
+    }
+
+    /**
+     * Finds the insertion point of the value, that is the index of the first
+     * value which is not less than the specified one.
+     *
+     * @param key the value to find the insertion point for
+     * @return index of the first value which is not less than the specified one,
+     * or {@link #size()} if all values are less than the specified one.
+     */
+    public int lowerBound(long key) {
+        // the first block which minimum is not less than the key
+        int lo = 0;
+        int hi = minima.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (minima[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        if (lo == 0) {
+            return 0;
+        }
+
+        // the key lies inside the previous block or right after its end
+        final int b = lo - 1;
+        final long target = key - minima[b];
+        final int start = b << BLOCK_SHIFT;
+
+        lo = 0;
+        hi = Math.min(BLOCK_SIZE, size - start);
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(offset(b, mid), target) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return start + lo;
+    }
+
+    /**
+     * @return the approximate number of bytes occupied by the compressed values
+     */
+    public long sizeInBytes() {
+        return 8L * minima.length + 4L * offsets.length + widths.length + 8L * words.length;
+    }
+
+    /**
+     * @return the offset of the value at position {@param i} inside block {@param b}
+     * from the block minimum
+     */
+    private long offset(int b, int i) {
+        final int width = widths[b];
+        if (width == 0) {
+            return 0;
+        }
+
+        final int bit = i * width;
+        final int word = offsets[b] + (bit >>> 6);
+        final int shift = bit & 63;
+
+        long value = words[word] >>> shift;
+        if (shift + width > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return width == 64 ? value : value & ((1L << width) - 1);
+    }
+
+    /**
+     * Writes {@param width} lowest bits of {@param value} at position {@param bit}
+     * counting from word {@param offset}.
+     */
+    private void pack(int offset, int bit, int width, long value) {
+        if (width == 0) {
+            return;
+        }
+
+        final int word = offset + (bit >>> 6);
+        final int shift = bit & 63;
+
+        words[word] |= value << shift;
+        if (shift + width > 64) {
+            words[word + 1] |= value >>> (64 - shift);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.codingthrough.search;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.codingthrough.ArrayPreconditions.ensureIndex;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.search.SearchSupport.sorted;
+
+/**
+ * The <tt>StringSearchIndex</tt> searches the sorted array of strings faster than
+ * <tt>BinarySearch</tt> does with <tt>String.compareTo()</tt>.
+ * <p>
+ * The index keeps the normalized prefix of every string packed into a single {@code long},
+ * so that most probes of the binary search compare two numbers from the compact array
+ * instead of dereferencing the strings. Prefixes start right after the characters shared
+ * by all the strings, hold the next 8 characters when they are all Latin-1 characters,
+ * or the next 4 characters otherwise, and preserve the string order when compared
+ * as unsigned numbers. Only when the prefixes tie,
+ * the strings are compared, skipping the leading characters which the searched string
+ * is known to share with both bounds of the current search range (longest common prefix).
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://en.wikipedia.org/wiki/LCP_array">Wikipedia article - LCP Array</a>.
+ * </p>
+ */
+public class StringSearchIndex {
+    private final String[] keys;
+    private final long[] prefixes;
+    private final int base;
+    private final int charBits;
+    private final int maxChar;
+
+    /**
+     * Creates the index over the sorted array, the array should not be modified
+     * while it's used by the index.
+     *
+     * @param a the array sorted according to <tt>String.compareTo()</tt>
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified array contains {@code null}
+     */
+    public StringSearchIndex(@Nonnull String[] a) {
+        ensureNotNull(a, "Array [a] should not be null.");
+
+        for (int i = 0; i < a.length; i++) {
+            ensureNotNull(a[i], "Element a[%d] should not be null.", i);
+        }
+
+        assert sorted(a);
+
+        // all the strings share the common prefix of the smallest and the greatest ones
+        final int cmp = a.length == 0 ? 0 : compare(a[0], a[a.length - 1], 0);
+        this.base = cmp == 0 ? (a.length == 0 ? 0 : a[0].length()) : Math.abs(cmp) - 1;
+
+        boolean latin1 = true;
+        for (int i = 0; i < a.length && latin1; i++) {
+            latin1 = isLatin1(a[i], base, base + 8);
+        }
+
+        this.keys = a;
+        this.prefixes = new long[a.length];
+        this.charBits = latin1 ? 8 : 16;
+        this.maxChar = latin1 ? 0xFF : 0xFFFF;
+
+        for (int i = 0; i < a.length; i++) {
+            prefixes[i] = prefix(a[i], false);
+        }
+    }
+
+    /**
+     * @return the number of strings
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the string at the specified position.
+     *
+     * @param index the index of the string
+     * @return the string at the specified position
+     * @throws IllegalArgumentException if the specified index is outside of bounds
+     */
+    public String get(int index) {
+        ensureIndex(keys.length, index);
+        return keys[index];
+    }
+
+    /**
+     * Finds the string.
+     *
+     * @param key the string to find
+     * @return index of the string if it's found, otherwise -1.
+     * @throws IllegalArgumentException if the specified string is {@code null}
+     */
+    public int rank(@Nonnull String key) {
+        final int index = lowerBound(key);
+        return index < keys.length && keys[index].equals(key) ? index : -1;
+    }
+
+    /**
+     * Finds the insertion point of the string, that is the index of the first
+     * string which is not less than the specified one.
+     *
+     * @param key the string to find the insertion point for
+     * @return index of the first string which is not less than the specified one,
+     * or {@link #size()} if all strings are less than the specified one.
+     * @throws IllegalArgumentException if the specified string is {@code null}
+     */
+    public int lowerBound(@Nonnull String key) {
+        ensureNotNull(key, "Key [key] should not be null.");
+
+        final long prefix = prefix(key, false);
+        return search(key, prefix, prefix, false);
+    }
+
+    /**
+     * Finds the index of the first string which starts with the specified prefix, or would
+     * be placed right after all such strings if there are none.
+     *
+     * @param prefix the prefix
+     * @return index of the first string which starts with the specified prefix,
+     * or the insertion point of the prefix.
+     * @throws IllegalArgumentException if the specified prefix is {@code null}
+     */
+    public int prefixLowerBound(@Nonnull String prefix) {
+        return lowerBound(prefix);
+    }
+
+    /**
+     * Finds the index right after the last string which starts with the specified prefix.
+     *
+     * @param prefix the prefix
+     * @return index of the first string which is greater than the specified prefix
+     * and does not start with it.
+     * @throws IllegalArgumentException if the specified prefix is {@code null}
+     */
+    public int prefixUpperBound(@Nonnull String prefix) {
+        ensureNotNull(prefix, "Prefix [prefix] should not be null.");
+        return search(prefix, prefix(prefix, false), prefix(prefix, true), true);
+    }
+
+    /**
+     * Finds all strings which start with the specified prefix.
+     *
+     * @param prefix the prefix
+     * @return unmodifiable view of the strings which start with the specified prefix,
+     * in the sorted order.
+     * @throws IllegalArgumentException if the specified prefix is {@code null}
+     */
+    public List<String> prefixRange(@Nonnull String prefix) {
+        final int from = prefixLowerBound(prefix);
+        final int to = prefixUpperBound(prefix);
+        return Collections.unmodifiableList(Arrays.asList(keys).subList(from, to));
+    }
+
+    /**
+     * Finds the first string which is greater than the searched one or, if {@param prefixEnd}
+     * is {@code true}, greater than and does not start with the searched one.
+     * <p>
+     * Strings which prefix is less than {@param low} precede the searched one, strings which
+     * prefix is greater than {@param high} follow it, and strings in between are compared
+     * to the searched one.
+     * </p>
+     */
+    private int search(String q, long low, long high, boolean prefixEnd) {
+        if (keys.length == 0) {
+            return 0;
+        }
+
+        // the searched string deviates from the characters shared by all the strings
+        final int shared = Math.min(base, q.length());
+        for (int i = 0; i < shared; i++) {
+            final char c = keys[0].charAt(i);
+            if (c != q.charAt(i)) {
+                return c > q.charAt(i) ? 0 : keys.length;
+            }
+        }
+        if (shared < base) {
+            return prefixEnd ? keys.length : 0;
+        }
+
+        int lo = 0;
+        int hi = keys.length;
+        // the common prefix length of the searched string and strings at lo - 1 and hi
+        int lcpLo = base;
+        int lcpHi = base;
+
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final long p = prefixes[mid];
+            final int skip = Math.min(lcpLo, lcpHi);
+
+            boolean before;
+            int lcp = skip;
+            if (Long.compareUnsigned(p, low) < 0) {
+                before = true;
+            } else if (Long.compareUnsigned(p, high) > 0) {
+                before = false;
+            } else {
+                final int cmp = compare(keys[mid], q, skip);
+                lcp = cmp == 0 ? q.length() : Math.abs(cmp) - 1;
+                before = cmp < 0 || (prefixEnd && lcp == q.length());
+            }
+
+            if (before) {
+                lo = mid + 1;
+                lcpLo = lcp;
+            } else {
+                hi = mid;
+                lcpHi = lcp;
+            }
+        }
+
+        return lo;
+    }
+
+    /**
+     * Packs the characters of the string which follow the shared ones into the number, which preserves the order
+     * of strings when compared as unsigned. Missing characters are filled with zeros, or with
+     * ones if {@param upper} is {@code true}. A character which does not fit into the index
+     * character width is replaced with the widest one followed by ones, so that the result
+     * is not less than the prefix of any indexed string which precedes the packed one.
+     */
+    private long prefix(String s, boolean upper) {
+        final int chars = 64 / charBits;
+        final int length = Math.max(0, Math.min(chars, s.length() - base));
+
+        long prefix = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(base + i);
+            if (c > maxChar) {
+                return (prefix << charBits | maxChar) << (chars - i - 1) * charBits | ones(chars - i - 1);
+            }
+            prefix = prefix << charBits | c;
+        }
+
+        prefix <<= (chars - length) * charBits;
+        return upper ? prefix | ones(chars - length) : prefix;
+    }
+
+    /**
+     * @return the number with {@param count} lowest characters set to ones
+     */
+    private long ones(int count) {
+        final int bits = count * charBits;
+        return bits == 0 ? 0 : -1L >>> (64 - bits);
+    }
+
+    /**
+     * Compares strings the same way <tt>String.compareTo()</tt> does, assuming that
+     * the first {@param from} characters are equal.
+     *
+     * @return 0 if strings are equal, otherwise the length of their common prefix plus one,
+     * negated if {@param a} is less than {@param b}
+     */
+    private static int compare(String a, String b, int from) {
+        final int n = Math.min(a.length(), b.length());
+        for (int i = from; i < n; i++) {
+            final char ca = a.charAt(i);
+            final char cb = b.charAt(i);
+            if (ca != cb) {
+                return ca < cb ? -(i + 1) : i + 1;
+            }
+        }
+
+        if (a.length() == b.length()) {
+            return 0;
+        }
+        return a.length() < b.length() ? -(n + 1) : n + 1;
+    }
+
+    private static boolean isLatin1(String s, int from, int to) {
+        for (int i = from; i < Math.min(to, s.length()); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,184 @@
+package com.codingthrough.search.server;
+
+import com.codingthrough.search.shard.Shard;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The <tt>Coalescer</tt> combines single-key lookups arriving concurrently from different
+ * connections into batched lookups of the index.
+ * <p>
+ * A lookup is put into the queue, and the first thread which finds no batch running becomes
+ * the combiner: it drains the queue by batches, completing lookups of other threads as well,
+ * until its own lookup is completed, and then wakes up the thread of the next queued lookup
+ * to take over. Other threads sleep until their lookups are completed or they are woken up
+ * to combine. So a lonely lookup is executed at once, and under load lookups are batched
+ * without any timer.
+ * </p>
+ * <p>
+ * Only one thread at a time looks the index up, so coalescing pays off for indexes which answer
+ * a batch of keys cheaper than the same keys one by one, such as <tt>SocketShard</tt>.
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://people.csail.mit.edu/shanir/publications/Flat%20Combining%20SPAA%2010.pdf">Flat
+ * Combining and the Synchronization-Parallelism Tradeoff</a>.
+ * </p>
+ */
+final class Coalescer {
+    private static final int MAX_BATCH = 1024;
+
+    private final Shard<Long> index;
+    private final Queue<Lookup> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private final LongAdder lookups;
+    private final LongAdder batches;
+
+    Coalescer(Shard<Long> index, LongAdder lookups, LongAdder batches) {
+        this.index = index;
+        this.lookups = lookups;
+        this.batches = batches;
+    }
+
+    /**
+     * @return the index of the key if {@param exact} is {@code true} and -1 if it's not found,
+     * otherwise the insertion point of the key
+     */
+    long lookup(long key, boolean exact) {
+        final Lookup lookup = new Lookup(key, exact, Thread.currentThread());
+        queue.add(lookup);
+        lookups.increment();
+
+        while (!lookup.done) {
+            if (combining.compareAndSet(false, true)) {
+                try {
+                    drain(lookup);
+                } finally {
+                    combining.set(false);
+
+                    // lookups queued after the last batch are left for the next combiner
+                    final Lookup next = queue.peek();
+                    if (next != null) {
+                        LockSupport.unpark(next.thread);
+                    }
+                }
+            } else {
+                LockSupport.park(this);
+            }
+        }
+
+        final Throwable error = lookup.error;
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+        return lookup.result;
+    }
+
+    /**
+     * Looks the keys up with a single batched lookup of the index. Keys of exact lookups are
+     * found by the insertion point of the next key, so that the index is not asked for keys
+     * at insertion points one by one.
+     *
+     * @return indexes of the keys if {@param exact} is {@code true} for them and -1 if they are
+     * not found, otherwise insertion points of the keys
+     */
+    static long[] lookup(Shard<Long> index, long[] keys, boolean[] exact) {
+        int next = keys.length;
+        for (int i = 0; i < keys.length; i++) {
+            if (exact[i] && keys[i] != Long.MAX_VALUE) {
+                next++;
+            }
+        }
+
+        final Long[] bounded = new Long[next];
+        next = keys.length;
+        for (int i = 0; i < keys.length; i++) {
+            bounded[i] = keys[i];
+            if (exact[i] && keys[i] != Long.MAX_VALUE) {
+                bounded[next++] = keys[i] + 1;
+            }
+        }
+
+        final long[] bounds = index.lowerBounds(bounded);
+        final long[] results = Arrays.copyOf(bounds, keys.length);
+        next = keys.length;
+        for (int i = 0; i < keys.length; i++) {
+            if (exact[i]) {
+                final long upper = keys[i] != Long.MAX_VALUE ? bounds[next++] : index.size();
+                if (upper == results[i]) {
+                    results[i] = -1;
+                }
+            }
+        }
+        return results;
+    }
+
+    private void drain(Lookup own) {
+        final Lookup[] batch = new Lookup[MAX_BATCH];
+        while (!own.done) {
+            int n = 0;
+            Lookup lookup;
+            while (n < MAX_BATCH && (lookup = queue.poll()) != null) {
+                batch[n++] = lookup;
+            }
+            if (n == 0) {
+                return;
+            }
+
+            try {
+                batches.increment();
+                final long[] keys = new long[n];
+                final boolean[] exact = new boolean[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = batch[i].key;
+                    exact[i] = batch[i].exact;
+                }
+
+                final long[] results = lookup(index, keys, exact);
+                for (int i = 0; i < n; i++) {
+                    batch[i].result = results[i];
+                }
+            } catch (Throwable e) {
+                // every waiter rethrows the failure, including errors, instead of waiting forever
+                for (int i = 0; i < n; i++) {
+                    batch[i].error = e;
+                }
+            } finally {
+                for (int i = 0; i < n; i++) {
+                    batch[i].done = true;
+                    LockSupport.unpark(batch[i].thread);
+                }
+            }
+        }
+    }
+
+    /**
+     * The lookup waiting to be batched, its result and error are published
+     * by writing the volatile completion flag.
+     */
+    private static final class Lookup {
+        private final long key;
+        private final boolean exact;
+        private final Thread thread;
+        private long result;
+        private Throwable error;
+        private volatile boolean done;
+
+        private Lookup(long key, boolean exact, Thread thread) {
+            this.key = key;
+            this.exact = exact;
+            this.thread = thread;
+        }
+    }
+}
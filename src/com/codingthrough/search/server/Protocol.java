@@ -0,0 +1,29 @@
+package com.codingthrough.search.server;
+
+/**
+ * This class consists of constants of the binary protocol spoken by <tt>SearchServer</tt>
+ * and <tt>SearchClient</tt>.
+ * <p>
+ * Every request starts with the operation code. {@link #INDEX} is followed by the name of
+ * the index and answered with its identifier, all other requests are followed by the index
+ * identifier: {@link #RANK} and {@link #LOWER_BOUND} by the key, {@link #COUNT} by the lowest
+ * and the highest keys of the range, {@link #RANKS} by the number of keys, at most
+ * {@link #MAX_KEYS}, and the keys. Numbers are big-endian, names are written in modified
+ * UTF-8 prefixed by their length, responses are framed as <tt>LoopbackServer</tt> describes.
+ * </p>
+ */
+final class Protocol {
+    static final byte INDEX = 1;
+    static final byte RANK = 2;
+    static final byte LOWER_BOUND = 3;
+    static final byte COUNT = 4;
+    static final byte RANKS = 5;
+
+    static final int MAX_KEYS = 1 << 20;
+
+    /**
+     * This class should not be instantiated.
+     */
+    private Protocol() {
+    }
+}
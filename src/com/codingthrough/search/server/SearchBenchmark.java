@@ -0,0 +1,142 @@
+package com.codingthrough.search.server;
+
+import com.codingthrough.search.shard.ArrayShard;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <tt>SearchBenchmark</tt> is the load generator which starts <tt>SearchServer</tt>
+ * hosting the index of random keys twice, searched directly and with coalesced lookups,
+ * sends single-key rank requests to each of them from many concurrent connections, and
+ * reports latency percentiles, throughput and the average number of requests combined
+ * into a single lookup of the coalesced index.
+ */
+public class SearchBenchmark {
+    private static final String DIRECT = "direct";
+    private static final String COALESCED = "coalesced";
+
+    /**
+     * This class should not be instantiated.
+     */
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of keys, the number of connections and the number of requests
+     *             per connection, 1000000, 64 and 20000 by default
+     * @throws Exception if the benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        final int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final int connections = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        final int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        final Random random = new Random(42);
+        final long[] values = new long[keys];
+        for (int i = 0; i < keys; i++) {
+            values[i] = random.nextLong();
+        }
+        Arrays.sort(values);
+        final Long[] sorted = new Long[keys];
+        for (int i = 0; i < keys; i++) {
+            sorted[i] = values[i];
+        }
+
+        final ExecutorService serverExecutor = SearchServer.newConnectionExecutor();
+        final ExecutorService clientExecutor = Executors.newFixedThreadPool(connections);
+        try (SearchServer server = new SearchServer(0)) {
+            final ArrayShard<Long> shard = new ArrayShard<>(sorted, Comparator.naturalOrder());
+            server.register(DIRECT, shard);
+            server.register(COALESCED, shard, true);
+            server.start(serverExecutor);
+
+            System.out.printf("connections: %d, keys: %d%n", connections, keys);
+            for (String index : new String[]{DIRECT, COALESCED}) {
+                // warm up both the server and the clients
+                run(server.port(), index, values, connections, requests / 10, clientExecutor);
+
+                final long lookups = server.lookups();
+                final long batches = server.batches();
+                final long start = System.nanoTime();
+                final long[] latencies = run(server.port(), index, values, connections, requests, clientExecutor);
+                final long elapsed = System.nanoTime() - start;
+
+                Arrays.sort(latencies);
+                System.out.printf("%s: %d requests, %.0f requests/s%n",
+                        index, latencies.length, latencies.length * 1e9 / elapsed);
+                System.out.printf("  latency p50: %.1f us, p99: %.1f us, p999: %.1f us, max: %.1f us%n",
+                        percentile(latencies, 0.5), percentile(latencies, 0.99),
+                        percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e3);
+                if (index.equals(COALESCED)) {
+                    System.out.printf("  requests per lookup batch: %.2f%n",
+                            (double) (server.lookups() - lookups) / Math.max(1, server.batches() - batches));
+                }
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends requests from concurrent connections.
+     *
+     * @return latencies of all requests in nanoseconds
+     */
+    private static long[] run(int port, String index, long[] values, int connections, int requests,
+                              ExecutorService executor) throws InterruptedException {
+        final long[] latencies = new long[connections * requests];
+        final CountDownLatch done = new CountDownLatch(connections);
+        final Throwable[] failure = new Throwable[1];
+
+        for (int c = 0; c < connections; c++) {
+            final int offset = c * requests;
+            final Random random = new Random(c);
+            executor.execute(() -> {
+                try (SearchClient client = new SearchClient(port)) {
+                    for (int i = 0; i < requests; i++) {
+                        // every other key is missing from the index
+                        final long key = random.nextBoolean()
+                                ? values[random.nextInt(values.length)]
+                                : random.nextLong();
+
+                        final long start = System.nanoTime();
+                        client.rank(index, key);
+                        latencies[offset + i] = System.nanoTime() - start;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await(1, TimeUnit.HOURS);
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new IllegalStateException("Benchmark connection failed.", failure[0]);
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * @return the latency in microseconds which {@param p} of the sorted latencies do not exceed
+     */
+    private static double percentile(long[] sorted, double p) {
+        final int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+}
@@ -0,0 +1,136 @@
+package com.codingthrough.search.server;
+
+import com.codingthrough.net.LoopbackClient;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireTrue;
+
+/**
+ * The <tt>SearchClient</tt> searches indexes hosted by <tt>SearchServer</tt> on the same host.
+ * <p>
+ * Requests share a single connection and are sent one at a time, so threads which search
+ * concurrently should use their own clients. Identifiers of indexes are requested once
+ * and cached by the client. Once the connection fails, all requests fail with {@code IOException}.
+ * </p>
+ */
+public class SearchClient extends LoopbackClient {
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Connects to the server listening the loopback address.
+     *
+     * @param port the port the server listens
+     * @throws IOException if the connection can not be established
+     */
+    public SearchClient(int port) throws IOException {
+        super(port);
+    }
+
+    /**
+     * Finds the key in the index.
+     *
+     * @param index the name of the index
+     * @param key   the key to find
+     * @return index of the key if it's found, otherwise -1.
+     * @throws IOException              if the request fails
+     * @throws IllegalArgumentException if the specified index is not hosted by the server
+     */
+    public long rank(@Nonnull String index, long key) throws IOException {
+        return lookup(Protocol.RANK, index, key);
+    }
+
+    /**
+     * Finds the insertion point of the key in the index, that is the index of the first
+     * key which is not less than the specified one.
+     *
+     * @param index the name of the index
+     * @param key   the key to find the insertion point for
+     * @return index of the first key which is not less than the specified one,
+     * or the size of the index if all keys are less than the specified one.
+     * @throws IOException              if the request fails
+     * @throws IllegalArgumentException if the specified index is not hosted by the server
+     */
+    public long lowerBound(@Nonnull String index, long key) throws IOException {
+        return lookup(Protocol.LOWER_BOUND, index, key);
+    }
+
+    /**
+     * Counts keys of the index inside the range.
+     *
+     * @param index the name of the index
+     * @param from  the lowest key of the range, inclusive
+     * @param to    the highest key of the range, exclusive
+     * @return the number of keys which are not less than {@param from} and less than {@param to}
+     * @throws IOException              if the request fails
+     * @throws IllegalArgumentException if the specified index is not hosted by the server
+     */
+    public long count(@Nonnull String index, long from, long to) throws IOException {
+        final int id = id(index);
+        return call(out -> {
+            out.writeByte(Protocol.COUNT);
+            out.writeInt(id);
+            out.writeLong(from);
+            out.writeLong(to);
+        }, in -> in.readLong());
+    }
+
+    /**
+     * Finds all the keys in the index with a single request.
+     *
+     * @param index the name of the index
+     * @param keys  the keys to find, at most 2^20
+     * @return indexes of the keys in the same order, -1 for keys which are not found
+     * @throws IOException              if the request fails
+     * @throws IllegalArgumentException if the specified index is not hosted by the server
+     * @throws IllegalArgumentException if the specified keys are {@code null} or too many
+     */
+    public long[] ranks(@Nonnull String index, @Nonnull long[] keys) throws IOException {
+        ensureNotNull(keys, "Keys [keys] should not be null.");
+        requireTrue(keys.length <= Protocol.MAX_KEYS,
+                "Number of keys (%d) should not exceed %d.", keys.length, Protocol.MAX_KEYS);
+
+        final int id = id(index);
+        return call(out -> {
+            out.writeByte(Protocol.RANKS);
+            out.writeInt(id);
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+        }, in -> {
+            final long[] ranks = new long[keys.length];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = in.readLong();
+            }
+            return ranks;
+        });
+    }
+
+    private long lookup(byte op, String index, long key) throws IOException {
+        final int id = id(index);
+        return call(out -> {
+            out.writeByte(op);
+            out.writeInt(id);
+            out.writeLong(key);
+        }, in -> in.readLong());
+    }
+
+    private synchronized int id(String index) throws IOException {
+        ensureNotNull(index, "Index [index] should not be null.");
+
+        Integer id = ids.get(index);
+        if (id == null) {
+            id = call(out -> {
+                out.writeByte(Protocol.INDEX);
+                out.writeUTF(index);
+            }, in -> in.readInt());
+            ids.put(index, id);
+        }
+        return id;
+    }
+}
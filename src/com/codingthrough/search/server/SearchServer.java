@@ -0,0 +1,201 @@
+package com.codingthrough.search.server;
+
+import com.codingthrough.net.LoopbackServer;
+import com.codingthrough.search.shard.Shard;
+
+import javax.annotation.Nonnull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireFalse;
+
+/**
+ * The <tt>SearchServer</tt> hosts named sorted indexes of {@code long} keys and answers
+ * <tt>SearchClient</tt> requests over the loopback socket, so that processes on the same
+ * host may share a single copy of the indexes.
+ * <p>
+ * Every connection is served by its own task of the executor, the executor which starts
+ * a virtual thread per task suits the server best, see {@link #newConnectionExecutor()}.
+ * Indexes are searched directly by the threads serving connections, unless they are
+ * registered as batched: single-key requests arriving concurrently for such an index
+ * are combined into batched lookups of the index.
+ * </p>
+ */
+public class SearchServer extends LoopbackServer {
+    private final Map<String, Integer> names = new ConcurrentHashMap<>();
+    private final List<Hosted> indexes = new CopyOnWriteArrayList<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Creates the server bound to the loopback address.
+     *
+     * @param port the port to listen, or 0 to pick any free one
+     * @throws IOException if the socket can not be bound
+     */
+    public SearchServer(int port) throws IOException {
+        super(port);
+    }
+
+    /**
+     * Returns the executor which starts a virtual thread per task if the runtime supports
+     * virtual threads, or the cached thread pool otherwise.
+     *
+     * @return the executor to serve connections
+     */
+    public static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Hosts the index under the name, the index is searched directly by the threads
+     * serving connections.
+     *
+     * @param name  the name of the index
+     * @param index the sorted index
+     * @throws IllegalArgumentException if the specified name or index is {@code null}
+     * @throws IllegalArgumentException if the index with the same name is already hosted
+     */
+    public void register(@Nonnull String name, @Nonnull Shard<Long> index) {
+        register(name, index, false);
+    }
+
+    /**
+     * Hosts the index under the name.
+     *
+     * @param name    the name of the index
+     * @param index   the sorted index
+     * @param batched {@code true} if the index answers a batch of keys cheaper than the same
+     *                keys one by one, such as <tt>SocketShard</tt>, then concurrent single-key
+     *                requests are combined into batched lookups, which are made by one thread
+     *                at a time
+     * @throws IllegalArgumentException if the specified name or index is {@code null}
+     * @throws IllegalArgumentException if the index with the same name is already hosted
+     */
+    public synchronized void register(@Nonnull String name, @Nonnull Shard<Long> index, boolean batched) {
+        ensureNotNull(name, "Name [name] should not be null.");
+        ensureNotNull(index, "Index [index] should not be null.");
+        requireFalse(names.containsKey(name), "Index (%s) is already registered.", name);
+
+        indexes.add(new Hosted(index, batched ? new Coalescer(index, lookups, batches) : null));
+        names.put(name, indexes.size() - 1);
+    }
+
+    /**
+     * @return the number of single-key lookups of batched indexes
+     */
+    public long lookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the number of batched lookups single-key lookups were combined into
+     */
+    public long batches() {
+        return batches.sum();
+    }
+
+    @Override
+    protected void respond(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        if (op < Protocol.INDEX || op > Protocol.RANKS) {
+            throw new IOException(String.format("Unknown operation (%d).", op));
+        }
+
+        if (op == Protocol.INDEX) {
+            final String name = in.readUTF();
+            final Integer id = names.get(name);
+            requireFalse(id == null, "Index (%s) is not registered.", name);
+            out.writeInt(id);
+            return;
+        }
+
+        final int id = in.readInt();
+        final Hosted hosted = id >= 0 && id < indexes.size() ? indexes.get(id) : null;
+        switch (op) {
+            case Protocol.RANK:
+            case Protocol.LOWER_BOUND: {
+                final long key = in.readLong();
+                ensureNotNull(hosted, "Index (%d) is not registered.", id);
+                out.writeLong(hosted.lookup(key, op == Protocol.RANK));
+                break;
+            }
+            case Protocol.COUNT: {
+                final Long from = in.readLong();
+                final Long to = in.readLong();
+                ensureNotNull(hosted, "Index (%d) is not registered.", id);
+                final long[] bounds = hosted.index.lowerBounds(new Long[]{from, to});
+                out.writeLong(Math.max(0, bounds[1] - bounds[0]));
+                break;
+            }
+            default: {
+                final long[] keys = new long[readCount(in, Protocol.MAX_KEYS)];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = in.readLong();
+                }
+                ensureNotNull(hosted, "Index (%d) is not registered.", id);
+
+                for (long rank : hosted.ranks(keys)) {
+                    out.writeLong(rank);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * The hosted index with the coalescer of its single-key lookups if the index is batched.
+     */
+    private static final class Hosted {
+        private final Shard<Long> index;
+        private final Coalescer coalescer;
+
+        private Hosted(Shard<Long> index, Coalescer coalescer) {
+            this.index = index;
+            this.coalescer = coalescer;
+        }
+
+        /**
+         * @return the index of the key if {@param exact} is {@code true} and -1 if it's not found,
+         * otherwise the insertion point of the key
+         */
+        private long lookup(long key, boolean exact) {
+            if (coalescer != null) {
+                return coalescer.lookup(key, exact);
+            }
+
+            final long bound = index.lowerBound(key);
+            return !exact || bound < index.size() && index.get(bound) == key ? bound : -1;
+        }
+
+        /**
+         * @return indexes of the keys, -1 for keys which are not found
+         */
+        private long[] ranks(long[] keys) {
+            if (coalescer != null) {
+                final boolean[] exact = new boolean[keys.length];
+                Arrays.fill(exact, true);
+                return Coalescer.lookup(index, keys, exact);
+            }
+
+            final long[] ranks = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                ranks[i] = lookup(keys[i], true);
+            }
+            return ranks;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.codingthrough.search.shard;
+
+import javax.annotation.Nonnull;
+import java.util.Comparator;
+
+import static com.codingthrough.ArrayPreconditions.ensureIndex;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.search.SearchSupport.sorted;
+
+/**
+ * The <tt>ArrayShard</tt> is the shard which keys are held by the sorted array on the heap.
+ */
+public class ArrayShard<T> implements Shard<T> {
+    private final T[] keys;
+    private final Comparator<T> comparator;
+
+    /**
+     * Creates the shard over the sorted array, the array should not be modified
+     * while it's used by the shard.
+     *
+     * @param a the sorted array
+     * @param c the comparator specifying the order
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified comparator is {@code null}
+     */
+    public ArrayShard(@Nonnull T[] a, @Nonnull Comparator<T> c) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        ensureNotNull(c, "Comparator [c] should not be null.");
+
+        assert sorted(a, c);
+
+        this.keys = a;
+        this.comparator = c;
+    }
+
+    @Override
+    public long size() {
+        return keys.length;
+    }
+
+    @Override
+    public T get(long index) {
+        ensureIndex(keys.length, index);
+        return keys[(int) index];
+    }
+
+    @Override
+    public long lowerBound(@Nonnull T key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (comparator.compare(keys[mid], key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,116 @@
+package com.codingthrough.search.shard;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.codingthrough.ArrayPreconditions.ensureIndex;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireTrue;
+
+/**
+ * The <tt>MappedLongShard</tt> is the shard which keys are read from the memory mapped file
+ * of sorted big-endian {@code long} values, so they occupy neither the heap nor the memory
+ * of the process until they are touched. The file may hold more than 2^31 values.
+ */
+public class MappedLongShard implements Shard<Long> {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps the file of sorted values.
+     *
+     * @param file the file of sorted big-endian values
+     * @throws IOException              if the file can not be mapped
+     * @throws IllegalArgumentException if the specified file is {@code null}
+     * @throws IllegalArgumentException if the file length is not a multiple of 8
+     */
+    public MappedLongShard(@Nonnull Path file) throws IOException {
+        ensureNotNull(file, "File [file] should not be null.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long bytes = channel.size();
+            requireTrue(bytes % Long.BYTES == 0, "File length (%d) should be a multiple of 8.", bytes);
+
+            this.size = bytes / Long.BYTES;
+            this.segments = new MappedByteBuffer[(int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_MASK + 1, bytes - position));
+            }
+        }
+    }
+
+    /**
+     * Writes the sorted values into the file, so that they can be mapped by the shard.
+     *
+     * @param file the file to write
+     * @param a    the sorted array
+     * @throws IOException              if the file can not be written
+     * @throws IllegalArgumentException if the specified file or array is {@code null}
+     */
+    public static void write(@Nonnull Path file, @Nonnull long[] a) throws IOException {
+        ensureNotNull(file, "File [file] should not be null.");
+        ensureNotNull(a, "Array [a] should not be null.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (long value : a) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(value);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Long get(long index) {
+        ensureIndex(size, index);
+        return value(index);
+    }
+
+    @Override
+    public long lowerBound(@Nonnull Long key) {
+        final long k = key;
+
+        long lo = 0;
+        long hi = size;
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            if (value(mid) < k) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long value(long index) {
+        final long position = index * Long.BYTES;
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,49 @@
+package com.codingthrough.search.shard;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The <tt>Shard</tt> is a sorted part of the keys held by <tt>ShardedSortedIndex</tt>,
+ * which may live on the heap, in a mapped file, or in a separate process.
+ * Implementations should be safe for concurrent use.
+ */
+public interface Shard<T> {
+    /**
+     * @return the number of keys
+     */
+    long size();
+
+    /**
+     * Returns the key at the specified position.
+     *
+     * @param index the index of the key
+     * @return the key at the specified position
+     * @throws IllegalArgumentException if the specified index is outside of bounds
+     */
+    T get(long index);
+
+    /**
+     * Finds the insertion point of the key, that is the index of the first
+     * key which is not less than the specified one.
+     *
+     * @param key the key to find the insertion point for
+     * @return index of the first key which is not less than the specified one,
+     * or {@link #size()} if all keys are less than the specified one.
+     */
+    long lowerBound(@Nonnull T key);
+
+    /**
+     * Finds insertion points of all the keys, shards which are expensive to call
+     * should answer with a single request.
+     *
+     * @param keys the keys to find insertion points for
+     * @return insertion points of the keys in the same order
+     */
+    default long[] lowerBounds(@Nonnull T[] keys) {
+        final long[] bounds = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            bounds[i] = lowerBound(keys[i]);
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,91 @@
+package com.codingthrough.search.shard;
+
+import com.codingthrough.net.LoopbackServer;
+
+import javax.annotation.Nonnull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+
+/**
+ * The <tt>ShardServer</tt> serves the shard of {@code long} keys to <tt>SocketShard</tt> clients
+ * over the loopback socket, so that the shard may live in a separate process.
+ * <p>
+ * Every request starts with the operation code: {@link #SIZE}, {@link #GET} followed by
+ * the index, {@link #LOWER_BOUND} followed by the key, or {@link #LOWER_BOUNDS} followed by
+ * the number of keys, at most {@link #MAX_KEYS}, and the keys. All numbers are big-endian,
+ * responses are framed as <tt>LoopbackServer</tt> describes.
+ * </p>
+ */
+public class ShardServer extends LoopbackServer {
+    static final byte SIZE = 1;
+    static final byte GET = 2;
+    static final byte LOWER_BOUND = 3;
+    static final byte LOWER_BOUNDS = 4;
+
+    static final int MAX_KEYS = 1 << 20;
+
+    private final Shard<Long> shard;
+
+    /**
+     * Creates the server bound to the loopback address.
+     *
+     * @param shard the shard to serve
+     * @param port  the port to listen, or 0 to pick any free one
+     * @throws IOException              if the socket can not be bound
+     * @throws IllegalArgumentException if the specified shard is {@code null}
+     */
+    public ShardServer(@Nonnull Shard<Long> shard, int port) throws IOException {
+        super(port);
+        this.shard = ensureNotNull(shard, "Shard [shard] should not be null.");
+    }
+
+    /**
+     * Serves the shard mapped from the file until the process is stopped.
+     *
+     * @param args the file of sorted big-endian values, and optionally the port
+     * @throws IOException if the file can not be mapped or the socket can not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ShardServer <file> [port]");
+            System.exit(1);
+        }
+
+        final Shard<Long> shard = new MappedLongShard(Paths.get(args[0]));
+        final ShardServer server = new ShardServer(shard, args.length > 1 ? Integer.parseInt(args[1]) : 0);
+        server.start(Executors.newCachedThreadPool());
+        System.out.println("Serving " + shard.size() + " keys on port " + server.port());
+    }
+
+    @Override
+    protected void respond(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case SIZE:
+                out.writeLong(shard.size());
+                break;
+            case GET:
+                out.writeLong(shard.get(in.readLong()));
+                break;
+            case LOWER_BOUND:
+                out.writeLong(shard.lowerBound(in.readLong()));
+                break;
+            case LOWER_BOUNDS: {
+                final Long[] keys = new Long[readCount(in, MAX_KEYS)];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = in.readLong();
+                }
+                for (long bound : shard.lowerBounds(keys)) {
+                    out.writeLong(bound);
+                }
+                break;
+            }
+            default:
+                throw new IOException(String.format("Unknown operation (%d).", op));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.codingthrough.search.shard;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.codingthrough.ArrayPreconditions.ensureIndex;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireFalse;
+
+/**
+ * The <tt>ShardedSortedIndex</tt> searches the sorted keys split into range partitioned
+ * shards, so the keys may exceed the size of a single array and may be spread between
+ * the heap, mapped files and other processes. Indexes of the keys are {@code long}.
+ * <p>
+ * The index keeps the first key of every shard in the small fence array, so a point lookup
+ * finds the only shard to ask by the binary search over the fences. Range and batch queries
+ * ask all the involved shards at once, every shard from its own task of the executor, so the
+ * executor which starts a virtual thread per task suits the index best.
+ * </p>
+ */
+public class ShardedSortedIndex<T> {
+    private final Shard<T>[] shards;
+    private final T[] fences;
+    private final long[] starts;
+    private final long size;
+    private final Comparator<T> comparator;
+    private final Executor executor;
+
+    /**
+     * Creates the index over the shards, empty shards are skipped.
+     *
+     * @param shards   the shards in the order of their keys
+     * @param c        the comparator specifying the order
+     * @param executor the executor which asks shards in parallel
+     * @throws IllegalArgumentException if the specified shards, comparator or executor is {@code null}
+     * @throws IllegalArgumentException if the keys of the shards are not in order
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ShardedSortedIndex(@Nonnull List<? extends Shard<T>> shards, @Nonnull Comparator<T> c,
+                              @Nonnull Executor executor) {
+        ensureNotNull(shards, "Shards [shards] should not be null.");
+        ensureNotNull(c, "Comparator [c] should not be null.");
+        ensureNotNull(executor, "Executor [executor] should not be null.");
+
+        final List<Shard<T>> nonEmpty = new ArrayList<>(shards.size());
+        for (Shard<T> shard : shards) {
+            ensureNotNull(shard, "Shard should not be null.");
+            if (shard.size() > 0) {
+                nonEmpty.add(shard);
+            }
+        }
+
+        this.shards = nonEmpty.toArray(new Shard[0]);
+        this.starts = new long[this.shards.length + 1];
+        this.comparator = c;
+        this.executor = executor;
+
+        this.fences = (T[]) new Object[this.shards.length];
+
+        T last = null;
+        for (int i = 0; i < this.shards.length; i++) {
+            final Shard<T> shard = this.shards[i];
+            final T first = shard.get(0);
+            requireFalse(last != null && c.compare(last, first) > 0,
+                    "Shard (%d) should not start before the previous one ends.", i);
+
+            fences[i] = first;
+            starts[i + 1] = starts[i] + shard.size();
+            last = shard.get(shard.size() - 1);
+        }
+
+        this.size = starts[this.shards.length];
+    }
+
+    /**
+     * @return the number of keys in all shards
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of non-empty shards
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the key at the specified position.
+     *
+     * @param index the index of the key
+     * @return the key at the specified position
+     * @throws IllegalArgumentException if the specified index is outside of bounds
+     */
+    public T get(long index) {
+        ensureIndex(size, index);
+
+        int lo = 0;
+        int hi = shards.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return shards[lo].get(index - starts[lo]);
+    }
+
+    /**
+     * Finds the key.
+     *
+     * @param key the key to find
+     * @return index of the key if it's found, otherwise -1.
+     * @throws IllegalArgumentException if the specified key is {@code null}
+     */
+    public long rank(@Nonnull T key) {
+        ensureNotNull(key, "Key [key] should not be null.");
+
+        final int shard = route(key);
+        if (shard < 0) {
+            return size > 0 && comparator.compare(fences[0], key) == 0 ? 0 : -1;
+        }
+        return rank(shard, shards[shard].lowerBound(key), key);
+    }
+
+    /**
+     * Finds the insertion point of the key, that is the index of the first
+     * key which is not less than the specified one.
+     *
+     * @param key the key to find the insertion point for
+     * @return index of the first key which is not less than the specified one,
+     * or {@link #size()} if all keys are less than the specified one.
+     * @throws IllegalArgumentException if the specified key is {@code null}
+     */
+    public long lowerBound(@Nonnull T key) {
+        ensureNotNull(key, "Key [key] should not be null.");
+
+        final int shard = route(key);
+        return shard < 0 ? 0 : starts[shard] + shards[shard].lowerBound(key);
+    }
+
+    /**
+     * Finds insertion points of all the keys, every involved shard is asked once
+     * and all of them are asked in parallel.
+     *
+     * @param keys the keys to find insertion points for
+     * @return insertion points of the keys in the same order
+     * @throws IllegalArgumentException if the specified keys or any of them is {@code null}
+     */
+    public long[] lowerBounds(@Nonnull T[] keys) {
+        return search(keys, false);
+    }
+
+    /**
+     * Finds all the keys, every involved shard is asked once and all of them are asked
+     * in parallel.
+     *
+     * @param keys the keys to find
+     * @return indexes of the keys in the same order, -1 for keys which are not found
+     * @throws IllegalArgumentException if the specified keys or any of them is {@code null}
+     */
+    public long[] ranks(@Nonnull T[] keys) {
+        return search(keys, true);
+    }
+
+    /**
+     * Counts keys inside the range, both bounds of the range are looked up in parallel.
+     *
+     * @param from the lowest key of the range, inclusive
+     * @param to   the highest key of the range, exclusive
+     * @return the number of keys which are not less than {@param from} and less than {@param to}
+     * @throws IllegalArgumentException if the specified keys are {@code null}
+     */
+    public long count(@Nonnull T from, @Nonnull T to) {
+        ensureNotNull(from, "Key [from] should not be null.");
+        ensureNotNull(to, "Key [to] should not be null.");
+
+        final CompletableFuture<Long> lo = CompletableFuture.supplyAsync(() -> lowerBound(from), executor);
+        final CompletableFuture<Long> hi = CompletableFuture.supplyAsync(() -> lowerBound(to), executor);
+        return Math.max(0, await(hi) - await(lo));
+    }
+
+    /**
+     * Groups the keys by shards, and asks every involved shard for insertion points
+     * of its keys in parallel, found insertion points are checked to hold the keys if
+     * {@param exact} is {@code true}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private long[] search(T[] keys, boolean exact) {
+        ensureNotNull(keys, "Keys [keys] should not be null.");
+
+        final long[] result = new long[keys.length];
+        final int[] routes = new int[keys.length];
+        // positions of keys grouped by shards, keys of shard s start at offsets[s + 1]
+        final int[] offsets = new int[shards.length + 2];
+        for (int i = 0; i < keys.length; i++) {
+            ensureNotNull(keys[i], "Key keys[%d] should not be null.", i);
+            routes[i] = route(keys[i]);
+            offsets[routes[i] + 2]++;
+        }
+        for (int s = 0; s <= shards.length; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        final int[] positions = new int[keys.length];
+        final int[] next = offsets.clone();
+        for (int i = 0; i < keys.length; i++) {
+            positions[next[routes[i] + 1]++] = i;
+        }
+
+        // keys not greater than the first key of all shards
+        for (int j = offsets[0]; j < offsets[1]; j++) {
+            final int i = positions[j];
+            result[i] = exact && (size == 0 || comparator.compare(fences[0], keys[i]) != 0) ? -1 : 0;
+        }
+
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int s = 0; s < shards.length; s++) {
+            final int from = offsets[s + 1];
+            final int to = offsets[s + 2];
+            if (from == to) {
+                continue;
+            }
+
+            final int shard = s;
+            final T[] batch = (T[]) Array.newInstance(keys.getClass().getComponentType(), to - from);
+            for (int j = from; j < to; j++) {
+                batch[j - from] = keys[positions[j]];
+            }
+
+            tasks.add(CompletableFuture.runAsync(() -> {
+                final long[] local = shards[shard].lowerBounds(batch);
+                for (int j = 0; j < batch.length; j++) {
+                    result[positions[from + j]] = exact
+                            ? rank(shard, local[j], batch[j])
+                            : starts[shard] + local[j];
+                }
+            }, executor));
+        }
+
+        await(CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])));
+        return result;
+    }
+
+    /**
+     * @return the index of the key if it's found at the insertion point {@param local}
+     * inside the shard {@param shard}, otherwise -1
+     */
+    private long rank(int shard, long local, T key) {
+        if (local < shards[shard].size()) {
+            return comparator.compare(shards[shard].get(local), key) == 0 ? starts[shard] + local : -1;
+        }
+        // the insertion point is the first key of the next shard
+        return shard + 1 < shards.length && comparator.compare(fences[shard + 1], key) == 0
+                ? starts[shard + 1]
+                : -1;
+    }
+
+    /**
+     * @return the index of the shard which may hold the insertion point of the key,
+     * or -1 if the key is not greater than the first key of all shards
+     */
+    private int route(T key) {
+        // the first shard which first key is not less than the key
+        int lo = 0;
+        int hi = fences.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (comparator.compare(fences[mid], key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
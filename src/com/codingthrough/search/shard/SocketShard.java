@@ -0,0 +1,96 @@
+package com.codingthrough.search.shard;
+
+import com.codingthrough.net.LoopbackClient;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static com.codingthrough.Preconditions.ensureNotNull;
+
+/**
+ * The <tt>SocketShard</tt> is the shard of {@code long} keys served by <tt>ShardServer</tt>
+ * running in a separate process on the same host. Requests share a single connection
+ * and are sent one at a time, the size of the shard is requested once. Once the connection
+ * fails, all requests fail with {@code UncheckedIOException}.
+ */
+public class SocketShard extends LoopbackClient implements Shard<Long> {
+    private final long size;
+
+    /**
+     * Connects to the server listening the loopback address.
+     *
+     * @param port the port the server listens
+     * @throws IOException if the connection can not be established
+     */
+    public SocketShard(int port) throws IOException {
+        super(port);
+        try {
+            this.size = call(out -> out.writeByte(ShardServer.SIZE), in -> in.readLong());
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Long get(long index) {
+        try {
+            return call(out -> {
+                out.writeByte(ShardServer.GET);
+                out.writeLong(index);
+            }, in -> in.readLong());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long lowerBound(@Nonnull Long key) {
+        ensureNotNull(key, "Key [key] should not be null.");
+        try {
+            return call(out -> {
+                out.writeByte(ShardServer.LOWER_BOUND);
+                out.writeLong(key);
+            }, in -> in.readLong());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long[] lowerBounds(@Nonnull Long[] keys) {
+        ensureNotNull(keys, "Keys [keys] should not be null.");
+        for (int i = 0; i < keys.length; i++) {
+            ensureNotNull(keys[i], "Key keys[%d] should not be null.", i);
+        }
+
+        final long[] bounds = new long[keys.length];
+        try {
+            for (int from = 0; from < keys.length; from += ShardServer.MAX_KEYS) {
+                final int start = from;
+                final int count = Math.min(ShardServer.MAX_KEYS, keys.length - from);
+                call(out -> {
+                    out.writeByte(ShardServer.LOWER_BOUNDS);
+                    out.writeInt(count);
+                    for (int i = start; i < start + count; i++) {
+                        out.writeLong(keys[i]);
+                    }
+                }, in -> {
+                    for (int i = start; i < start + count; i++) {
+                        bounds[i] = in.readLong();
+                    }
+                    return bounds;
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bounds;
+    }
+}
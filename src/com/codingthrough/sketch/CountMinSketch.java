@@ -0,0 +1,259 @@
+package com.codingthrough.sketch;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.stream.Collector;
+
+import static com.codingthrough.ArrayPreconditions.ensureBounds;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireTrue;
+
+/**
+ * The <tt>CountMinSketch</tt> estimates how many times elements occur in a stream using
+ * the fixed amount of memory, and is the approximate alternative to counting occurrences
+ * with <tt>LinearSearch.duplicates()</tt> over and over again.
+ * <p>
+ * The estimate is never less than the real number of occurrences, and with probability
+ * of at least {@code 1 - delta} it exceeds the real number by no more than {@code epsilon * n},
+ * where {@code n} is the total number of added occurrences. Both adding and estimating
+ * take {@code O(ln(1 / delta))} time.
+ * </p>
+ * <p>
+ * Elements are hashed using <tt>Object.hashCode()</tt>, which should be stable between
+ * processes if serialized sketches are merged. The sketch is not thread safe, sketches
+ * built by separate threads are combined with {@link #merge(CountMinSketch)}.
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://en.wikipedia.org/wiki/Count%E2%80%93min_sketch">Wikipedia article - Count-Min Sketch</a>.
+ * </p>
+ */
+public class CountMinSketch<T> {
+    private static final byte FORMAT = 1;
+
+    private final int depth;
+    private final int width;
+    private final long[] counts;
+    private long total;
+
+    /**
+     * Creates the empty sketch.
+     *
+     * @param epsilon the maximum estimate error relative to the total number of occurrences
+     * @param delta   the probability of the estimate error to exceed the maximum
+     * @throws IllegalArgumentException if the specified epsilon or delta is not in (0, 1) range
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        this(depth(delta), width(epsilon));
+    }
+
+    private CountMinSketch(int depth, int width) {
+        requireTrue((long) depth * width <= Integer.MAX_VALUE, "Sketch is too large (%d x %d).", depth, width);
+
+        this.depth = depth;
+        this.width = width;
+        this.counts = new long[depth * width];
+    }
+
+    /**
+     * Returns the collector which builds the sketch from the stream, parallel streams
+     * are supported.
+     *
+     * @param epsilon the maximum estimate error relative to the total number of occurrences
+     * @param delta   the probability of the estimate error to exceed the maximum
+     * @return the sketch collector
+     * @throws IllegalArgumentException if the specified epsilon or delta is not in (0, 1) range
+     */
+    public static <T> Collector<T, ?, CountMinSketch<T>> collector(double epsilon, double delta) {
+        final int depth = depth(delta);
+        final int width = width(epsilon);
+        return Collector.of(
+                () -> new CountMinSketch<T>(depth, width),
+                CountMinSketch::add,
+                CountMinSketch::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Adds a single occurrence of the element.
+     *
+     * @param e the element
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     */
+    public void add(@Nonnull T e) {
+        add(e, 1);
+    }
+
+    /**
+     * Adds occurrences of the element.
+     *
+     * @param e     the element
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     * @throws IllegalArgumentException if the specified count is negative
+     */
+    public void add(@Nonnull T e, long count) {
+        ensureNotNull(e, "Element [e] should not be null.");
+        requireTrue(count >= 0, "Count should not be negative.");
+
+        final long hash = hash(e);
+        for (int i = 0; i < depth; i++) {
+            counts[index(hash, i)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Adds occurrences of all elements of the array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified array contains {@code null}
+     */
+    public void addAll(@Nonnull T[] a) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        if (a.length > 0) {
+            addAll(a, 0, a.length - 1);
+        }
+    }
+
+    /**
+     * Adds occurrences of all elements of the array inside bounds.
+     *
+     * @param a  the array
+     * @param lo the lowest index
+     * @param hi the highest index
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified bounds are outside of array bounds
+     * @throws IllegalArgumentException if the specified array contains {@code null}
+     */
+    public void addAll(@Nonnull T[] a, int lo, int hi) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        ensureBounds(a.length, lo, hi);
+
+        for (int i = lo; i <= hi; i++) {
+            add(a[i]);
+        }
+    }
+
+    /**
+     * Estimates the number of occurrences of the element.
+     *
+     * @param e the element
+     * @return the estimated number of occurrences, which is not less than the real one
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     */
+    public long estimate(@Nonnull T e) {
+        ensureNotNull(e, "Element [e] should not be null.");
+
+        final long hash = hash(e);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, counts[index(hash, i)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the total number of added occurrences
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Adds all occurrences counted by the other sketch to this one.
+     *
+     * @param other the sketch built with the same error bounds
+     * @return this sketch
+     * @throws IllegalArgumentException if the specified sketch is {@code null}
+     * @throws IllegalArgumentException if the specified sketch has different error bounds
+     */
+    public CountMinSketch<T> merge(@Nonnull CountMinSketch<T> other) {
+        ensureNotNull(other, "Sketch [other] should not be null.");
+        requireTrue(depth == other.depth && width == other.width,
+                "Sketch dimensions (%d x %d) should be equal to (%d x %d).",
+                other.depth, other.width, depth, width);
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * Serializes the sketch, counters are written using variable length encoding,
+     * so sparse sketches take less bytes.
+     *
+     * @return the serialized sketch
+     */
+    public byte[] toBytes() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 + counts.length);
+        out.write(FORMAT);
+        VarInts.write(out, depth);
+        VarInts.write(out, width);
+        VarInts.write(out, total);
+        for (long count : counts) {
+            VarInts.write(out, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes the sketch.
+     *
+     * @param bytes the sketch serialized by {@link #toBytes()}
+     * @return the sketch
+     * @throws IllegalArgumentException if the specified bytes are {@code null}
+     * @throws IllegalArgumentException if the specified bytes do not hold the serialized sketch
+     */
+    public static <T> CountMinSketch<T> fromBytes(@Nonnull byte[] bytes) {
+        ensureNotNull(bytes, "Bytes [bytes] should not be null.");
+
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        requireTrue(in.hasRemaining() && in.get() == FORMAT, "Unknown sketch format.");
+
+        final int depth = VarInts.readInt(in);
+        final int width = VarInts.readInt(in);
+        requireTrue(depth > 0 && width > 0, "Sketch dimensions (%d x %d) should be positive.", depth, width);
+        final long total = VarInts.read(in);
+        // every counter takes at least one byte
+        requireTrue((long) depth * width <= in.remaining(), "Unexpected end of bytes.");
+
+        final CountMinSketch<T> sketch = new CountMinSketch<>(depth, width);
+        sketch.total = total;
+        for (int i = 0; i < sketch.counts.length; i++) {
+            sketch.counts[i] = VarInts.read(in);
+        }
+        requireTrue(!in.hasRemaining(), "Unexpected bytes after the sketch.");
+        return sketch;
+    }
+
+    private static int depth(double delta) {
+        requireTrue(delta > 0 && delta < 1, "Delta (%f) should be in (0, 1) range.", delta);
+        return (int) Math.ceil(Math.log(1 / delta));
+    }
+
+    private static int width(double epsilon) {
+        requireTrue(epsilon > 0 && epsilon < 1, "Epsilon (%f) should be in (0, 1) range.", epsilon);
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(Math.E / epsilon));
+    }
+
+    /**
+     * @return the 64-bit hash of the element, which halves are used to derive
+     * the counter index in every row
+     */
+    private static long hash(Object e) {
+        long h = e.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+
+    private int index(long hash, int row) {
+        final int h = (int) hash + row * (int) (hash >>> 32);
+        return row * width + ((h & Integer.MAX_VALUE) % width);
+    }
+}
@@ -0,0 +1,493 @@
+package com.codingthrough.sketch;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+import static com.codingthrough.ArrayPreconditions.ensureBounds;
+import static com.codingthrough.Preconditions.ensureNotNull;
+import static com.codingthrough.Preconditions.requireFalse;
+import static com.codingthrough.Preconditions.requireTrue;
+
+/**
+ * The <tt>SpaceSaving</tt> finds the most frequent elements of a stream (heavy hitters)
+ * using the fixed number of counters.
+ * <p>
+ * Every tracked element has its own counter, and when an untracked element arrives while
+ * all counters are taken, it replaces the element with the smallest count and inherits
+ * that count as the possible error. So the estimate of an element is never less than the
+ * real number of its occurrences and exceeds it by no more than {@code n / capacity}, where
+ * {@code n} is the total number of added occurrences, and any element occurring more than
+ * {@code n / capacity} times is always tracked.
+ * </p>
+ * <p>
+ * Counters are kept in buckets of equal counts, which are linked in the order of increasing
+ * counts (Stream-Summary). So estimating and adding a single occurrence take {@code O(1)} time,
+ * adding more occurrences at once takes time proportional to the number of distinct counts
+ * the counter passes, and the {@code k} most frequent elements are found in {@code O(k)} time.
+ * </p>
+ * <p>
+ * The summary is not thread safe, summaries built by separate threads are combined
+ * with {@link #merge(SpaceSaving)}.
+ * </p>
+ * <p>
+ * For additional information,
+ * see <a href="https://www.cs.ucsb.edu/sites/default/files/documents/2005-23.pdf">Efficient
+ * Computation of Frequent and Top-k Elements in Data Streams</a>.
+ * </p>
+ */
+public class SpaceSaving<T> {
+    private static final byte FORMAT = 1;
+
+    private final int capacity;
+    private final Map<T, Counter<T>> counters;
+    // buckets with the smallest and the greatest counts
+    private Bucket<T> min;
+    private Bucket<T> max;
+    private long total;
+
+    /**
+     * Creates the empty summary.
+     *
+     * @param capacity the number of counters, estimates exceed the real number of occurrences
+     *                 by no more than {@code 1 / capacity} of the total number of occurrences
+     * @throws IllegalArgumentException if the specified capacity is not positive
+     */
+    public SpaceSaving(int capacity) {
+        requireTrue(capacity > 0, "Capacity (%d) should be positive.", capacity);
+
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+    }
+
+    /**
+     * Returns the collector which builds the summary from the stream, parallel streams
+     * are supported.
+     *
+     * @param capacity the number of counters
+     * @return the summary collector
+     * @throws IllegalArgumentException if the specified capacity is not positive
+     */
+    public static <T> Collector<T, ?, SpaceSaving<T>> collector(int capacity) {
+        requireTrue(capacity > 0, "Capacity (%d) should be positive.", capacity);
+        return Collector.of(
+                () -> new SpaceSaving<T>(capacity),
+                SpaceSaving::add,
+                SpaceSaving::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Adds a single occurrence of the element.
+     *
+     * @param e the element
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     */
+    public void add(@Nonnull T e) {
+        add(e, 1);
+    }
+
+    /**
+     * Adds occurrences of the element.
+     *
+     * @param e     the element
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     * @throws IllegalArgumentException if the specified count is negative
+     */
+    public void add(@Nonnull T e, long count) {
+        ensureNotNull(e, "Element [e] should not be null.");
+        requireTrue(count >= 0, "Count should not be negative.");
+
+        total += count;
+
+        Counter<T> counter = counters.get(e);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter<>(e, 0);
+                counters.put(e, counter);
+                attach(counter, bucket(null, count));
+                return;
+            }
+
+            counter = min.first;
+            counters.remove(counter.element);
+            counter.element = e;
+            counter.error = min.count;
+            counters.put(e, counter);
+        }
+
+        if (count > 0) {
+            final Bucket<T> bucket = bucket(counter.bucket, counter.bucket.count + count);
+            detach(counter);
+            attach(counter, bucket);
+        }
+    }
+
+    /**
+     * Adds occurrences of all elements of the array.
+     *
+     * @param a the array
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified array contains {@code null}
+     */
+    public void addAll(@Nonnull T[] a) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        if (a.length > 0) {
+            addAll(a, 0, a.length - 1);
+        }
+    }
+
+    /**
+     * Adds occurrences of all elements of the array inside bounds.
+     *
+     * @param a  the array
+     * @param lo the lowest index
+     * @param hi the highest index
+     * @throws IllegalArgumentException if the specified array is {@code null}
+     * @throws IllegalArgumentException if the specified bounds are outside of array bounds
+     * @throws IllegalArgumentException if the specified array contains {@code null}
+     */
+    public void addAll(@Nonnull T[] a, int lo, int hi) {
+        ensureNotNull(a, "Array [a] should not be null.");
+        ensureBounds(a.length, lo, hi);
+
+        for (int i = lo; i <= hi; i++) {
+            add(a[i]);
+        }
+    }
+
+    /**
+     * Estimates the number of occurrences of the element.
+     *
+     * @param e the element
+     * @return the estimated number of occurrences, which is not less than the real one
+     * @throws IllegalArgumentException if the specified element is {@code null}
+     */
+    public long estimate(@Nonnull T e) {
+        ensureNotNull(e, "Element [e] should not be null.");
+
+        final Counter<T> counter = counters.get(e);
+        if (counter != null) {
+            return counter.bucket.count;
+        }
+        return counters.size() < capacity ? 0 : min.count;
+    }
+
+    /**
+     * Returns the most frequent elements, which takes {@code O(k)} time.
+     *
+     * @param k the maximum number of elements to return
+     * @return at most {@param k} tracked elements in the order of decreasing estimates
+     * @throws IllegalArgumentException if the specified number is negative
+     */
+    public List<HeavyHitter<T>> top(int k) {
+        requireTrue(k >= 0, "Number (%d) should not be negative.", k);
+
+        final List<HeavyHitter<T>> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Bucket<T> bucket = max; bucket != null && top.size() < k; bucket = bucket.prev) {
+            for (Counter<T> counter = bucket.first; counter != null && top.size() < k; counter = counter.next) {
+                top.add(new HeavyHitter<>(counter.element, bucket.count, counter.error));
+            }
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    /**
+     * @return the total number of added occurrences
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return the number of counters
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds all occurrences counted by the other summary to this one. An element tracked
+     * by only one of the summaries is assumed to occur in the other one as many times
+     * as its smallest count, so that estimates stay not less than real numbers and
+     * within the same error bounds.
+     *
+     * @param other the summary with the same capacity
+     * @return this summary
+     * @throws IllegalArgumentException if the specified summary is {@code null}
+     * @throws IllegalArgumentException if the specified summary has different capacity
+     */
+    public SpaceSaving<T> merge(@Nonnull SpaceSaving<T> other) {
+        ensureNotNull(other, "Summary [other] should not be null.");
+        requireTrue(capacity == other.capacity,
+                "Capacity (%d) should be equal to (%d).", other.capacity, capacity);
+
+        final long thisMin = counters.size() < capacity ? 0 : min.count;
+        final long otherMin = other.counters.size() < other.capacity ? 0 : other.min.count;
+
+        final List<HeavyHitter<T>> merged = new ArrayList<>(counters.size() + other.counters.size());
+        for (Counter<T> counter : counters.values()) {
+            final Counter<T> same = other.counters.get(counter.element);
+            merged.add(same == null
+                    ? new HeavyHitter<>(counter.element, counter.bucket.count + otherMin, counter.error + otherMin)
+                    : new HeavyHitter<>(counter.element, counter.bucket.count + same.bucket.count, counter.error + same.error));
+        }
+        for (Counter<T> counter : other.counters.values()) {
+            if (!counters.containsKey(counter.element)) {
+                merged.add(new HeavyHitter<>(counter.element, counter.bucket.count + thisMin, counter.error + thisMin));
+            }
+        }
+        merged.sort((a, b) -> Long.compare(b.count, a.count));
+
+        clear();
+        final List<HeavyHitter<T>> kept = merged.subList(0, Math.min(capacity, merged.size()));
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            append(kept.get(i).element, kept.get(i).count, kept.get(i).error);
+        }
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * Serializes the summary.
+     *
+     * @param encoder the function which serializes the element
+     * @return the serialized summary
+     * @throws IllegalArgumentException if the specified encoder is {@code null}
+     */
+    public byte[] toBytes(@Nonnull Function<? super T, byte[]> encoder) {
+        ensureNotNull(encoder, "Encoder [encoder] should not be null.");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT);
+        VarInts.write(out, capacity);
+        VarInts.write(out, total);
+        VarInts.write(out, counters.size());
+        for (Bucket<T> bucket = min; bucket != null; bucket = bucket.next) {
+            for (Counter<T> counter = bucket.first; counter != null; counter = counter.next) {
+                final byte[] element = encoder.apply(counter.element);
+                VarInts.write(out, bucket.count);
+                VarInts.write(out, counter.error);
+                VarInts.write(out, element.length);
+                out.write(element, 0, element.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes the summary.
+     *
+     * @param bytes   the summary serialized by {@link #toBytes(Function)}
+     * @param decoder the function which deserializes the element
+     * @return the summary
+     * @throws IllegalArgumentException if the specified bytes or decoder is {@code null}
+     * @throws IllegalArgumentException if the specified bytes do not hold the serialized summary
+     */
+    public static <T> SpaceSaving<T> fromBytes(@Nonnull byte[] bytes, @Nonnull Function<byte[], ? extends T> decoder) {
+        ensureNotNull(bytes, "Bytes [bytes] should not be null.");
+        ensureNotNull(decoder, "Decoder [decoder] should not be null.");
+
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        requireTrue(in.hasRemaining() && in.get() == FORMAT, "Unknown summary format.");
+
+        final SpaceSaving<T> summary = new SpaceSaving<>(VarInts.readInt(in));
+        summary.total = VarInts.read(in);
+
+        final int size = VarInts.readInt(in);
+        requireTrue(size <= summary.capacity, "Size (%d) should not exceed capacity (%d).", size, summary.capacity);
+        // every counter takes at least three bytes
+        requireTrue(size <= in.remaining() / 3, "Unexpected end of bytes.");
+        final List<HeavyHitter<T>> tracked = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final long count = VarInts.read(in);
+            final long error = VarInts.read(in);
+            final int length = VarInts.readInt(in);
+            requireTrue(length >= 0 && length <= in.remaining(), "Unexpected end of bytes.");
+            final byte[] element = new byte[length];
+            in.get(element);
+
+            tracked.add(new HeavyHitter<>(decoder.apply(element), count, error));
+        }
+        requireTrue(!in.hasRemaining(), "Unexpected bytes after the summary.");
+
+        tracked.sort((a, b) -> Long.compare(a.count, b.count));
+        for (HeavyHitter<T> hitter : tracked) {
+            ensureNotNull(hitter.element, "Decoded element should not be null.");
+            requireFalse(summary.counters.containsKey(hitter.element), "Element (%s) should not be repeated.", hitter.element);
+            summary.append(hitter.element, hitter.count, hitter.error);
+        }
+        return summary;
+    }
+
+    /**
+     * Tracks the element, elements are appended in the order of increasing counts.
+     */
+    private void append(T element, long count, long error) {
+        final Counter<T> counter = new Counter<>(element, error);
+        counters.put(element, counter);
+        attach(counter, max != null && max.count == count ? max : bucket(max, count));
+    }
+
+    private void clear() {
+        counters.clear();
+        min = null;
+        max = null;
+    }
+
+    /**
+     * Finds the bucket of the count following the bucket {@param from}, which count is less
+     * than the specified one, or following the start of the list if it's {@code null}.
+     * The missing bucket is linked into the list.
+     */
+    private Bucket<T> bucket(Bucket<T> from, long count) {
+        Bucket<T> prev = from;
+        Bucket<T> next = from == null ? min : from.next;
+        while (next != null && next.count < count) {
+            prev = next;
+            next = next.next;
+        }
+        if (next != null && next.count == count) {
+            return next;
+        }
+
+        final Bucket<T> bucket = new Bucket<>(count);
+        bucket.prev = prev;
+        bucket.next = next;
+        if (prev == null) {
+            min = bucket;
+        } else {
+            prev.next = bucket;
+        }
+        if (next == null) {
+            max = bucket;
+        } else {
+            next.prev = bucket;
+        }
+        return bucket;
+    }
+
+    private static <T> void attach(Counter<T> counter, Bucket<T> bucket) {
+        counter.bucket = bucket;
+        counter.prev = null;
+        counter.next = bucket.first;
+        if (bucket.first != null) {
+            bucket.first.prev = counter;
+        }
+        bucket.first = counter;
+    }
+
+    /**
+     * Removes the counter from its bucket, and unlinks the bucket if it becomes empty.
+     */
+    private void detach(Counter<T> counter) {
+        final Bucket<T> bucket = counter.bucket;
+        if (counter.prev == null) {
+            bucket.first = counter.next;
+        } else {
+            counter.prev.next = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.prev = counter.prev;
+        }
+
+        if (bucket.first == null) {
+            if (bucket.prev == null) {
+                min = bucket.next;
+            } else {
+                bucket.prev.next = bucket.next;
+            }
+            if (bucket.next == null) {
+                max = bucket.prev;
+            } else {
+                bucket.next.prev = bucket.prev;
+            }
+        }
+    }
+
+    /**
+     * The tracked element with the estimated number of its occurrences.
+     */
+    public static final class HeavyHitter<T> {
+        private final T element;
+        private final long count;
+        private final long error;
+
+        private HeavyHitter(T element, long count, long error) {
+            this.element = element;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * @return the element
+         */
+        public T element() {
+            return element;
+        }
+
+        /**
+         * @return the estimated number of occurrences, which is not less than the real one
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return the maximum difference between the estimated and the real number of occurrences
+         */
+        public long error() {
+            return error;
+        }
+
+        /**
+         * @return the number of occurrences which is guaranteed, it is not greater than the real one
+         */
+        public long guaranteed() {
+            return count - error;
+        }
+
+        @Override
+        public String toString() {
+            return element + "=" + count + " (error " + error + ")";
+        }
+    }
+
+    /**
+     * The counter of the tracked element, which count is the count of its bucket.
+     */
+    private static final class Counter<T> {
+        private T element;
+        private long error;
+        private Bucket<T> bucket;
+        private Counter<T> prev;
+        private Counter<T> next;
+
+        private Counter(T element, long error) {
+            this.element = element;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The list of counters with equal counts.
+     */
+    private static final class Bucket<T> {
+        private final long count;
+        private Counter<T> first;
+        private Bucket<T> prev;
+        private Bucket<T> next;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+    }
+}
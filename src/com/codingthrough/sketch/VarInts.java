@@ -0,0 +1,69 @@
+package com.codingthrough.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This class consists of {@code static} utility methods for writing and reading
+ * non-negative numbers using variable length encoding, 7 bits per byte, so that
+ * small numbers take less bytes.
+ */
+final class VarInts {
+    /**
+     * This class should not be instantiated.
+     */
+    private VarInts() {
+    }
+
+    /**
+     * Writes the number.
+     *
+     * @param out   the output
+     * @param value the non-negative number
+     */
+    static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads the number.
+     *
+     * @param in the input
+     * @return the number
+     * @throws IllegalArgumentException if the input does not hold the correctly encoded number
+     */
+    static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected end of bytes.");
+            }
+
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length number.");
+    }
+
+    /**
+     * Reads the number which should fit into {@code int}.
+     *
+     * @param in the input
+     * @return the number
+     * @throws IllegalArgumentException if the input does not hold the correctly encoded number
+     */
+    static int readInt(ByteBuffer in) {
+        final long value = read(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Number (%d) is out of range.", value));
+        }
+        return (int) value;
+    }
+}